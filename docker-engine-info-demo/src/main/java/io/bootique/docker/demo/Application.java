@@ -19,10 +19,17 @@
 
 package io.bootique.docker.demo;
 
+import javax.inject.Singleton;
+
 import io.bootique.BQCoreModule;
 import io.bootique.BaseModule;
 import io.bootique.Bootique;
+import io.bootique.config.ConfigurationFactory;
 import io.bootique.di.Binder;
+import io.bootique.di.Provides;
+import io.bootique.docker.DockerClients;
+import io.bootique.docker.demo.guard.EngineGuardFactory;
+import io.bootique.docker.demo.guard.GuardedDockerClients;
 
 public class Application extends BaseModule {
 
@@ -41,4 +48,11 @@ public class Application extends BaseModule {
                 .setDefaultCommand(DefaultEngineInfoCommand.class);
     }
 
+    @Provides
+    @Singleton
+    GuardedDockerClients provideGuardedDockerClients(DockerClients dockerClients,
+            ConfigurationFactory configFactory) {
+        return configFactory.config(EngineGuardFactory.class, "engineGuard").createClients(dockerClients);
+    }
+
 }
\ No newline at end of file
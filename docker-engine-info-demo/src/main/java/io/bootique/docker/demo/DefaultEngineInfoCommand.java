@@ -10,14 +10,14 @@ import io.bootique.cli.Cli;
 import io.bootique.command.CommandOutcome;
 import io.bootique.command.CommandWithMetadata;
 import io.bootique.meta.application.CommandMetadata;
-import io.bootique.docker.DockerClients;
+import io.bootique.docker.demo.guard.GuardedDockerClients;
 
 public class DefaultEngineInfoCommand extends CommandWithMetadata {
 
-    private Provider<DockerClients> dockerClientsProvider;
+    private Provider<GuardedDockerClients> dockerClientsProvider;
 
     @Inject
-    public DefaultEngineInfoCommand(Provider<DockerClients> dockerClientsProvider) {
+    public DefaultEngineInfoCommand(Provider<GuardedDockerClients> dockerClientsProvider) {
         super(CommandMetadata.builder(
                 DefaultEngineInfoCommand.class)
                 .description("Connects to Docker-engine defined trough environment and prints info")
@@ -19,10 +19,19 @@
 
 package io.bootique.docker.demo;
 
+import javax.inject.Singleton;
+
 import io.bootique.BQCoreModule;
 import io.bootique.BaseModule;
 import io.bootique.Bootique;
+import io.bootique.config.ConfigurationFactory;
 import io.bootique.di.Binder;
+import io.bootique.di.Provides;
+import io.bootique.docker.DockerClients;
+import io.bootique.docker.demo.config.ContainerResourceProfiles;
+import io.bootique.docker.demo.config.DindCache;
+import io.bootique.docker.demo.guard.EngineGuardFactory;
+import io.bootique.docker.demo.guard.GuardedDockerClients;
 
 public class Application extends BaseModule {
 
@@ -41,4 +50,23 @@ public class Application extends BaseModule {
                 .setDefaultCommand(InceptionCommand.class);
     }
 
+    @Provides
+    @Singleton
+    ContainerResourceProfiles provideContainerResourceProfiles(ConfigurationFactory configFactory) {
+        return configFactory.config(ContainerResourceProfiles.class, "containers");
+    }
+
+    @Provides
+    @Singleton
+    DindCache provideDindCache(ConfigurationFactory configFactory) {
+        return configFactory.config(DindCache.class, "dindCache");
+    }
+
+    @Provides
+    @Singleton
+    GuardedDockerClients provideGuardedDockerClients(DockerClients dockerClients,
+            ConfigurationFactory configFactory) {
+        return configFactory.config(EngineGuardFactory.class, "engineGuard").createClients(dockerClients);
+    }
+
 }
\ No newline at end of file
@@ -1,5 +1,10 @@
 package io.bootique.docker.demo;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -8,31 +13,48 @@ import javax.inject.Provider;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.command.CreateContainerCmd;
 import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.exception.ConflictException;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.Bind;
 import com.github.dockerjava.api.model.Container;
 import com.github.dockerjava.api.model.ExposedPort;
+import com.github.dockerjava.api.model.Image;
 import com.github.dockerjava.api.model.Info;
 import com.github.dockerjava.api.model.Ports;
+import com.github.dockerjava.api.model.Volume;
 
 import io.bootique.cli.Cli;
 import io.bootique.command.CommandOutcome;
 import io.bootique.command.CommandWithMetadata;
-import io.bootique.docker.DockerClients;
+import io.bootique.docker.demo.config.ContainerResourceProfiles;
+import io.bootique.docker.demo.config.DindCache;
+import io.bootique.docker.demo.guard.GuardedDockerClients;
 import io.bootique.meta.application.CommandMetadata;
 
 public class InceptionCommand extends CommandWithMetadata {
 
-    private Provider<DockerClients> dockerClientsProvider;
+    private Provider<GuardedDockerClients> dockerClientsProvider;
+    private Provider<ContainerResourceProfiles> resourceProfilesProvider;
+    private Provider<DindCache> dindCacheProvider;
 
     private static final String DOCKER_IN_DOCKER_IMAGE = "docker:dind-rootless";
     private static final String CONTAINER_NAME = "bootique-inception-demo";
+    private static final String DIND_ROLE = "dind";
+    private static final String DIND_DATA_ROOT = "/home/rootless/.local/share/docker";
+    private static final long DIND_START_TIMEOUT_MS = 30_000;
+    private static final long DIND_PING_INTERVAL_MS = 200;
 
     @Inject
-    public InceptionCommand(Provider<DockerClients> dockerClientsProvider) {
+    public InceptionCommand(Provider<GuardedDockerClients> dockerClientsProvider,
+            Provider<ContainerResourceProfiles> resourceProfilesProvider,
+            Provider<DindCache> dindCacheProvider) {
         super(CommandMetadata.builder(
                 InceptionCommand.class)
                 .description("Starts Docker in Docker to demonstrate dual clients")
                 .build());
         this.dockerClientsProvider = dockerClientsProvider;
+        this.resourceProfilesProvider = resourceProfilesProvider;
+        this.dindCacheProvider = dindCacheProvider;
     }
 
     @Override
@@ -88,37 +110,161 @@ public class InceptionCommand extends CommandWithMetadata {
                 .withPrivileged(true); // Also we need to run container in --privileged mode, due to DinD container
                                        // requirements (this helps with host system resource sharing under the hood)
 
+        // Privileged engine may run any number of inner containers, so we keep it within
+        // limits configured in YAML (if any)
+        resourceProfilesProvider.get().getProfile(DIND_ROLE).apply(createCommand.getHostConfig());
+
+        // Everything engine pulls is stored in its data root, which is gone together with
+        // container. Backing data root with named volume keeps images between runs.
+        DindCache dindCache = dindCacheProvider.get();
+        if (dindCache.getVolume() != null) {
+            client.createVolumeCmd().withName(dindCache.getVolume()).exec(); // no-op if volume exists
+            createCommand.getHostConfig()
+                    .withBinds(Collections.singletonList(new Bind(dindCache.getVolume(), new Volume(DIND_DATA_ROOT))));
+        }
+
         // Now we are ready to create container
         CreateContainerResponse container = createCommand.exec();
 
-        // Container ready, but we need explicitly start it, due to API restriction on
-        // atomicity of each change
-        client.startContainerCmd(container.getId()).exec();
+        // From this moment privileged container exists on host, so whatever happens
+        // next, it must be removed in the end
+        try {
+
+            // Container ready, but we need explicitly start it, due to API restriction on
+            // atomicity of each change
+            client.startContainerCmd(container.getId()).exec();
+
+            // DinD image has a delay in start (longer with fresh cache volume), so we wait
+            // until engine answers ping
+            DockerClient dockerInDockerClient = dockerClientsProvider.get().getClient("dind");
+            if (!waitForEngine(dockerInDockerClient)) {
+                return CommandOutcome.failed(-1, "Docker in docker engine didn't start in "
+                        + DIND_START_TIMEOUT_MS / 1000 + "s");
+            }
+
+            // Images host engine already has don't need to be downloaded once again, they can
+            // be copied from one engine to another
+            seedImages(client, dockerInDockerClient, dindCache.getSeedImages());
+
+            // Now DinD engine is running, so we can request same info fields from there.
+            // As a result we gonna see that it's an independent Docker-engine with
+            // independent client connected to it.
+            Info infoDind = dockerInDockerClient.infoCmd().exec();
+            System.out.println("[ docker in docker ] ID: " + infoDind.getId());
+            System.out.println("[ docker in docker ] OS: " + infoDind.getOperatingSystem());
+            System.out.println("[ docker in docker ] Root dir: " + infoDind.getDockerRootDir());
+
+            // Cache volume outlives container, so it'll grow with every run unless we keep
+            // it within limits
+            if (dindCache.getMaxSize() != null) {
+                try {
+                    pruneImages(dockerInDockerClient, dindCache.getMaxSize().getBytes(), dindCache.getSeedImages());
+                } catch (RuntimeException e) {
+                    // Cache will be pruned on next run
+                    e.printStackTrace();
+                }
+            }
+
+            return CommandOutcome.succeeded();
+        } finally {
+
+            // We'd like to clear environment after demo run, so we remove container now.
+            // Forced remove kills container first, if it's still running.
+            client.removeContainerCmd(container.getId()).withForce(true).exec();
+            client.waitContainerCmd(container.getId());
+        }
+    }
+
+    private static boolean waitForEngine(DockerClient dockerInDockerClient) {
+        long deadline = System.currentTimeMillis() + DIND_START_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                dockerInDockerClient.pingCmd().exec();
+                return true;
+            } catch (RuntimeException e) {
+                // Engine is not listening yet
+            }
+            try {
+                Thread.sleep(DIND_PING_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static void seedImages(DockerClient hostClient, DockerClient dockerInDockerClient, List<String> images) {
+        for (String image : images) {
+            try {
+                seedImage(hostClient, dockerInDockerClient, image);
+            } catch (IOException | RuntimeException e) {
+                // Image will be pulled by engine if needed, so failed seeding is not a
+                // reason to stop demo
+                System.out.println("[ docker in docker ] Image is not seeded: " + image + ", " + e.getMessage());
+            }
+        }
+    }
+
+    private static void seedImage(DockerClient hostClient, DockerClient dockerInDockerClient, String image)
+            throws IOException {
+        if (hasImage(dockerInDockerClient, image)) {
+            System.out.println("[ docker in docker ] Image is cached: " + image);
+            return;
+        }
+        if (!hasImage(hostClient, image)) {
+            System.out.println("[  default docker  ] No image to seed: " + image);
+            return;
+        }
+
+        // Saved image is a tar stream, which is passed to load command as is, so
+        // image is never stored on disk or held in memory as a whole
+        try (InputStream imageStream = hostClient.saveImageCmd(image).exec()) {
+            dockerInDockerClient.loadImageCmd(imageStream).exec();
+            System.out.println("[ docker in docker ] Image is seeded from host: " + image);
+        }
+    }
 
-        // DinD image has a delay in start, we could add health checking, but for
-        // current demo it'll be an overkill - so let's just sleep for 1 second (this
-        // should be enough).
+    private static boolean hasImage(DockerClient client, String image) {
         try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            client.inspectImageCmd(image).exec();
+            return true;
+        } catch (NotFoundException e) {
+            return false;
         }
+    }
+
+    // Image sizes include shared layers, so total is an upper estimate of disk usage
+    // and pruning may remove a bit more than strictly needed
+    private static void pruneImages(DockerClient dockerInDockerClient, long maxSize, List<String> keepImages) {
+        List<Image> images = new ArrayList<>(dockerInDockerClient.listImagesCmd().exec());
+        long totalSize = 0;
+        for (Image image : images) {
+            totalSize += image.getSize();
+        }
+
+        // Images built earliest go first (engine doesn't track when image was pulled),
+        // seeded images are kept, as they are expected to be needed on next run
+        images.sort(Comparator.comparing(Image::getCreated));
+        for (Image image : images) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+            if (image.getRepoTags() != null && !Collections.disjoint(List.of(image.getRepoTags()), keepImages)) {
+                continue;
+            }
 
-        // Now DinD engine must be running already, so we can request same info fields
-        // from there. As a result we gonna see that it's an independent Docker-engine
-        // with independent client connected to it.
-        DockerClient dockerInDockerClient = dockerClientsProvider.get().getClient("dind");
-        Info infoDind = dockerInDockerClient.infoCmd().exec();
-        System.out.println("[ docker in docker ] ID: " + infoDind.getId());
-        System.out.println("[ docker in docker ] OS: " + infoDind.getOperatingSystem());
-        System.out.println("[ docker in docker ] Root dir: " + infoDind.getDockerRootDir());
-
-        // We'd like to clear environment after demo run, so we remove container now
-        client.killContainerCmd(container.getId()).exec();
-        client.removeContainerCmd(container.getId()).exec();
-        client.waitContainerCmd(container.getId());
-
-        return CommandOutcome.succeeded();
+            // Image may be already gone together with its parent or may have dependent
+            // child images, either way it's not a reason to leave container running
+            try {
+                dockerInDockerClient.removeImageCmd(image.getId()).withForce(true).exec();
+                totalSize -= image.getSize();
+                System.out.println("[ docker in docker ] Image is pruned from cache: " + image.getId());
+            } catch (NotFoundException | ConflictException e) {
+                System.out.println("[ docker in docker ] Image is not pruned: " + image.getId() + ", "
+                        + e.getMessage());
+            }
+        }
     }
 
 }
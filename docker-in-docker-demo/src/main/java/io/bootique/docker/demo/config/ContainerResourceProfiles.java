@@ -0,0 +1,46 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.config;
+
+import java.util.Collections;
+import java.util.Map;
+
+import io.bootique.annotation.BQConfig;
+import io.bootique.annotation.BQConfigProperty;
+
+@BQConfig("Resource limits of containers started by demo")
+public class ContainerResourceProfiles {
+
+    private static final ContainerResources UNLIMITED = new ContainerResources();
+
+    private Map<String, ContainerResources> profiles = Collections.emptyMap();
+
+    @BQConfigProperty("Resource limits keyed by container role")
+    public void setProfiles(Map<String, ContainerResources> profiles) {
+        this.profiles = profiles != null ? profiles : Collections.emptyMap();
+    }
+
+    // Roles without configured profile (or with empty one, which comes from YAML as
+    // null) are started without any limits
+    public ContainerResources getProfile(String role) {
+        ContainerResources resources = profiles.get(role);
+        return resources != null ? resources : UNLIMITED;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.config;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.bootique.annotation.BQConfig;
+import io.bootique.annotation.BQConfigProperty;
+import io.bootique.value.Bytes;
+
+@BQConfig("Image cache of docker-in-docker engine kept between runs")
+public class DindCache {
+
+    private String volume;
+    private Bytes maxSize;
+    private List<String> seedImages = Collections.emptyList();
+
+    @BQConfigProperty("Named volume backing data root of docker-in-docker engine. If not set, data is lost on "
+            + "container removal")
+    public void setVolume(String volume) {
+        this.volume = volume;
+    }
+
+    @BQConfigProperty("Max total size of images kept in cache, e.g. '5g'. Images with the oldest build date are "
+            + "removed first above it")
+    public void setMaxSize(Bytes maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @BQConfigProperty("Images copied from host engine into docker-in-docker engine, unless already there")
+    public void setSeedImages(List<String> seedImages) {
+        // Empty 'seedImages:' key in YAML comes as null
+        this.seedImages = seedImages != null ? seedImages : Collections.emptyList();
+    }
+
+    public String getVolume() {
+        return volume;
+    }
+
+    public Bytes getMaxSize() {
+        return maxSize;
+    }
+
+    public List<String> getSeedImages() {
+        return seedImages;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.guard;
+
+import java.time.Duration;
+
+import io.bootique.annotation.BQConfig;
+import io.bootique.annotation.BQConfigProperty;
+import io.bootique.docker.DockerClients;
+
+@BQConfig("Admission control of calls made to Docker engines")
+public class EngineGuardFactory {
+
+    private int initialLimit = 8;
+    private int minLimit = 1;
+    private int maxLimit = 64;
+    private double backoffRatio = 0.9;
+    private double latencyTolerance = 2.0;
+    private Duration acquireTimeout = Duration.ofSeconds(30);
+    private int maxRetries = 3;
+    private Duration baseBackoff = Duration.ofMillis(50);
+    private Duration maxBackoff = Duration.ofSeconds(2);
+    private int failureThreshold = 5;
+    private Duration openDuration = Duration.ofSeconds(5);
+
+    @BQConfigProperty("Concurrency limit each engine starts with. Default is 8")
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    @BQConfigProperty("Concurrency limit never goes below this value. Default is 1")
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    @BQConfigProperty("Concurrency limit never goes above this value. Default is 64")
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    @BQConfigProperty("Limit is multiplied by this value on engine overload. Default is 0.9")
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    @BQConfigProperty("How many times call may be slower than baseline before it's treated as overload. Default is 2.0")
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    @BQConfigProperty("How long call may wait for a free permit. Default is 30s")
+    public void setAcquireTimeout(io.bootique.value.Duration acquireTimeout) {
+        this.acquireTimeout = acquireTimeout.getDuration();
+    }
+
+    @BQConfigProperty("Max retries of a call failed with retryable error. Default is 3")
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    @BQConfigProperty("Backoff before first retry, doubled for each next one. Default is 50ms")
+    public void setBaseBackoff(io.bootique.value.Duration baseBackoff) {
+        this.baseBackoff = baseBackoff.getDuration();
+    }
+
+    @BQConfigProperty("Max backoff between retries. Default is 2s")
+    public void setMaxBackoff(io.bootique.value.Duration maxBackoff) {
+        this.maxBackoff = maxBackoff.getDuration();
+    }
+
+    @BQConfigProperty("Number of consecutive failures opening circuit breaker. Default is 5")
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    @BQConfigProperty("How long circuit breaker stays open before trial call. Default is 5s")
+    public void setOpenDuration(io.bootique.value.Duration openDuration) {
+        this.openDuration = openDuration.getDuration();
+    }
+
+    public GuardedDockerClients createClients(DockerClients dockerClients) {
+        return new GuardedDockerClients(dockerClients, this);
+    }
+
+    public EngineGuard createGuard(String name) {
+        return new EngineGuard(name,
+                new AdaptiveLimit(initialLimit, minLimit, maxLimit, backoffRatio, latencyTolerance),
+                new CircuitBreaker(failureThreshold, openDuration.toNanos()),
+                acquireTimeout.toNanos(),
+                maxRetries,
+                baseBackoff.toMillis(),
+                maxBackoff.toMillis());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.guard;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.DockerCmd;
+import com.github.dockerjava.api.command.SyncDockerCmd;
+
+// Docker client calls are made in two steps: client creates a command object and
+// command's 'exec()' makes a request. This proxy wraps client and every command
+// it creates, so each synchronous 'exec()' goes through engine guard. Async
+// commands (attach, pull, exec start) are streaming and long-living, so they pass
+// through as is.
+public class GuardedDockerClient implements InvocationHandler {
+
+    private final Object target;
+    private final Class<?> type;
+    private final EngineGuard guard;
+
+    private GuardedDockerClient(Object target, Class<?> type, EngineGuard guard) {
+        this.target = target;
+        this.type = type;
+        this.guard = guard;
+    }
+
+    public static DockerClient wrap(DockerClient client, EngineGuard guard) {
+        return wrap(client, DockerClient.class, guard);
+    }
+
+    private static <T> T wrap(Object target, Class<T> type, EngineGuard guard) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new GuardedDockerClient(target, type, guard)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+        if (target instanceof SyncDockerCmd && "exec".equals(method.getName())
+                && method.getParameterCount() == 0) {
+            return guard.call(type, () -> invokeUnchecked(method, args));
+        }
+
+        Object result = invokeTarget(method, args);
+
+        // Builder-style methods return command itself, so we must keep returning proxy
+        if (result == target) {
+            return proxy;
+        }
+        if (result instanceof DockerCmd && method.getReturnType().isInterface()) {
+            return wrap(result, method.getReturnType(), guard);
+        }
+        return result;
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object invokeUnchecked(Method method, Object[] args) {
+        try {
+            return invokeTarget(method, args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
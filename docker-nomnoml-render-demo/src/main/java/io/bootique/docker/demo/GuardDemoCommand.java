@@ -0,0 +1,171 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import com.github.dockerjava.api.DockerClient;
+
+import io.bootique.cli.Cli;
+import io.bootique.command.CommandOutcome;
+import io.bootique.command.CommandWithMetadata;
+import io.bootique.docker.demo.guard.EngineGuard;
+import io.bootique.docker.demo.guard.EngineUnavailableException;
+import io.bootique.docker.demo.guard.GuardedDockerClients;
+import io.bootique.docker.demo.stub.StubEngine;
+import io.bootique.meta.application.CommandMetadata;
+
+public class GuardDemoCommand extends CommandWithMetadata {
+
+    private Provider<GuardedDockerClients> guardedClientsProvider;
+
+    // Must match 'dockerHost' of 'stub' client in stub-engine.yml
+    private static final int STUB_PORT = 2399;
+    private static final String STUB_CLIENT_NAME = "stub";
+    private static final int WORKERS = 64;
+
+    private static final Phase[] PHASES = {
+            new Phase("healthy", 10, 5, 1, 0.0),
+            new Phase("slowdown", 10, 50, 10, 0.1),
+            new Phase("outage", 5, 0, 0, 1.0),
+            new Phase("recovered", 10, 5, 1, 0.0)
+    };
+
+    @Inject
+    public GuardDemoCommand(Provider<GuardedDockerClients> guardedClientsProvider) {
+        super(CommandMetadata.builder(
+                GuardDemoCommand.class)
+                .description("Runs load against fault-injecting stub engine to show engine guard behavior")
+                .build());
+        this.guardedClientsProvider = guardedClientsProvider;
+    }
+
+    @Override
+    public CommandOutcome run(Cli cli) {
+
+        // Client is resolved before stub is started, so nothing is left to clean up if
+        // it's not configured
+        GuardedDockerClients guardedClients = guardedClientsProvider.get();
+        DockerClient client;
+        try {
+            client = guardedClients.getClient(STUB_CLIENT_NAME);
+        } catch (RuntimeException e) {
+            return CommandOutcome.failed(-1, "No '" + STUB_CLIENT_NAME
+                    + "' docker client configured, run demo with '-c stub-engine.yml' option", e);
+        }
+        EngineGuard guard = guardedClients.getGuard(STUB_CLIENT_NAME);
+
+        StubEngine stub;
+        try {
+            stub = new StubEngine(STUB_PORT);
+        } catch (IOException e) {
+            return CommandOutcome.failed(-2, "Failed to start stub engine on port " + STUB_PORT, e);
+        }
+
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        try {
+            stub.start();
+
+            // Far more workers than engine can serve, each of them sending requests
+            // one after another as fast as it can
+            for (int i = 0; i < WORKERS; i++) {
+                workers.execute(() -> {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        try {
+                            client.infoCmd().exec();
+                            succeeded.incrementAndGet();
+                        } catch (EngineUnavailableException e) {
+                            rejected.incrementAndGet();
+                            pause();
+                        } catch (RuntimeException e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                });
+            }
+
+            AtomicReference<Phase> currentPhase = new AtomicReference<>(PHASES[0]);
+            reporter.scheduleAtFixedRate(() -> System.out.println(String.format(
+                    "[%-9s] ok: %5d/s  failed: %4d/s  rejected: %5d/s  limit: %2d  in flight: %2d  breaker: %s",
+                    currentPhase.get().name,
+                    succeeded.getAndSet(0),
+                    failed.getAndSet(0),
+                    rejected.getAndSet(0),
+                    guard.getLimit(),
+                    stub.getInFlight(),
+                    guard.getBreakerState())), 1, 1, TimeUnit.SECONDS);
+
+            for (Phase phase : PHASES) {
+                currentPhase.set(phase);
+                stub.setFaults(phase.baseLatencyMillis, phase.perRequestLatencyMillis, phase.errorRate);
+                TimeUnit.SECONDS.sleep(phase.seconds);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            reporter.shutdownNow();
+            workers.shutdownNow();
+            stub.close();
+        }
+
+        return CommandOutcome.succeeded();
+    }
+
+    // Callers rejected by open breaker get no engine time, so small pause keeps them
+    // from spinning
+    private static void pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Phase {
+
+        final String name;
+        final int seconds;
+        final long baseLatencyMillis;
+        final long perRequestLatencyMillis;
+        final double errorRate;
+
+        Phase(String name, int seconds, long baseLatencyMillis, long perRequestLatencyMillis, double errorRate) {
+            this.name = name;
+            this.seconds = seconds;
+            this.baseLatencyMillis = baseLatencyMillis;
+            this.perRequestLatencyMillis = perRequestLatencyMillis;
+            this.errorRate = errorRate;
+        }
+    }
+}
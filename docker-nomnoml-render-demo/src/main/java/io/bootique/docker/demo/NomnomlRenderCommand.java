@@ -30,12 +30,14 @@ import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.exception.NotFoundException;
 import com.github.dockerjava.api.model.Bind;
 import com.github.dockerjava.api.model.Container;
 import com.github.dockerjava.api.model.ExposedPort;
@@ -47,7 +49,9 @@ import com.google.common.io.Files;
 import io.bootique.cli.Cli;
 import io.bootique.command.CommandOutcome;
 import io.bootique.command.CommandWithMetadata;
-import io.bootique.docker.DockerClients;
+import io.bootique.docker.demo.config.ContainerResourceProfiles;
+import io.bootique.docker.demo.guard.GuardedDockerClients;
+import io.bootique.docker.demo.util.ArchiveUtils;
 import io.bootique.docker.demo.util.ContainerUtils;
 import io.bootique.docker.demo.util.DesktopUtils;
 import io.bootique.meta.application.CommandMetadata;
@@ -55,17 +59,24 @@ import io.bootique.meta.application.OptionMetadata;
 
 public class NomnomlRenderCommand extends CommandWithMetadata {
 
-    private Provider<DockerClients> dockerClientsProvider;
+    private Provider<GuardedDockerClients> dockerClientsProvider;
+    private Provider<ContainerResourceProfiles> resourceProfilesProvider;
 
     private static final String NOMNOML_DOCKER_IMAGE = "dapariscode/nomnoml-cli:latest";
     private static final String NGINX_DOCKER_IMAGE = "nginx:alpine";
     private static final String CONTAINER_NAME = "bootique-nomnoml-demo";
+    private static final String RENDERER_ROLE = "renderer";
+    private static final String VIEWER_ROLE = "viewer";
     private static final String NOMNOML_FILE_ARG = "file";
+    private static final String OUTPUT_FILE_ARG = "output";
+    private static final String RENDER_OUTPUT_PATH = "/home/node/output.png";
 
     @Inject
-    public NomnomlRenderCommand(Provider<DockerClients> dockerClientsProvider) {
+    public NomnomlRenderCommand(Provider<GuardedDockerClients> dockerClientsProvider,
+            Provider<ContainerResourceProfiles> resourceProfilesProvider) {
         super(commandMetadata());
         this.dockerClientsProvider = dockerClientsProvider;
+        this.resourceProfilesProvider = resourceProfilesProvider;
     }
 
     private static CommandMetadata commandMetadata() {
@@ -73,6 +84,7 @@ public class NomnomlRenderCommand extends CommandWithMetadata {
                 NomnomlRenderCommand.class)
                 .description("Renders nomnoml file via Docker container")
                 .addOption(renderFileOption())
+                .addOption(outputFileOption())
                 .addOption(ContainerUtils.restartContainerOption())
                 .addOption(ContainerUtils.killContainerOption())
                 .addOption(DesktopUtils.browseURLOption())
@@ -87,6 +99,14 @@ public class NomnomlRenderCommand extends CommandWithMetadata {
                 .build();
     }
 
+    public static OptionMetadata outputFileOption() {
+        return OptionMetadata.builder(
+                OUTPUT_FILE_ARG)
+                .description("Local file to save rendered image to. When specified, no viewer container is started")
+                .valueRequired("output_file")
+                .build();
+    }
+
     @Override
     public CommandOutcome run(Cli cli) {
 
@@ -107,24 +127,27 @@ public class NomnomlRenderCommand extends CommandWithMetadata {
         // Let's keep tmp clean after we are done with demo
         tempDir.deleteOnExit();
 
-        // Resolving docker client module endpoint
-        DockerClients dockerClients = dockerClientsProvider.get();
+        // Resolving docker client module endpoint, each client it returns passes
+        // calls through admission control of its engine
+        GuardedDockerClients dockerClients = dockerClientsProvider.get();
 
         // Here we instantiate client configured from the surrounding environment
         // properties as specified in the Docker Client
         DockerClient client = dockerClients.getEnvClient();
 
+        // Resource limits for each container role are taken from YAML config
+        ContainerResourceProfiles resourceProfiles = resourceProfilesProvider.get();
+
         // Stop and delete container with name used for demo, if -r flag was specified
         ContainerUtils.handleRestartOption(cli, client, CONTAINER_NAME);
 
+        // Renderer doesn't share any directory with host, so the same code works for
+        // remote engines as well - result is streamed back to us after render is done
         Container nomnomlContainer = ContainerUtils.getOrStart(client,
                 NOMNOML_DOCKER_IMAGE,
                 CONTAINER_NAME,
-                new Bind(
-                        tempDir.getAbsolutePath(), // We'll mount temp dir to containers
-                        new Volume("/home/node/host")// This is an arbitrary we use for demo
-                ),
-                "bash"); // container will start in interactive mode with Bash running
+                "bash", // container will start in interactive mode with Bash running
+                resourceProfiles.getProfile(RENDERER_ROLE));
 
         try (BufferedReader fileReader = new BufferedReader(new FileReader(file));
                 PipedOutputStream out = new PipedOutputStream(); // To send commands to Bash we ought to user piped
@@ -164,7 +187,7 @@ public class NomnomlRenderCommand extends CommandWithMetadata {
                                 }
 
                                 // After file is ready we are finally can call nomnoml-cli and render file
-                                writer.write("./nomnoml -i ./test.nomnoml -o /home/node/host/output.png\n");
+                                writer.write("./nomnoml -i ./test.nomnoml -o " + RENDER_OUTPUT_PATH + "\n");
 
                                 // Execution is asynchronous, so we must stop container from inside container.
                                 // We can achieve it via simple 'exit' from Bash - this will trigger container
@@ -182,10 +205,30 @@ public class NomnomlRenderCommand extends CommandWithMetadata {
             e.printStackTrace();
         }
         // Above we've issued 'exit' command, so at this line container will already
-        // stopped and shell will be detached (because of 'awaitCompletion()' call),
-        // but now we need to remove container to reuse it name for viewer.
+        // stopped and shell will be detached (because of 'awaitCompletion()' call).
+        // Stopped container still keeps its filesystem, so we can pull result out of it.
+        String outputPath = cli.optionString(OUTPUT_FILE_ARG);
+        Path outputFile = outputPath != null
+                ? new File(outputPath).toPath()
+                : new File(tempDir, "output.png").toPath();
+        try {
+            long size = ArchiveUtils.copyFileFromContainer(client, nomnomlContainer.getId(), RENDER_OUTPUT_PATH,
+                    outputFile);
+            System.out.println("Rendered image (" + size + " bytes) saved to " + outputFile);
+        } catch (IOException | NotFoundException e) {
+            ContainerUtils.removeByName(client, CONTAINER_NAME);
+            return CommandOutcome.failed(-3, "Failed to retrieve rendered image from container", e);
+        }
+
+        // Now we need to remove container to reuse it name for viewer.
         ContainerUtils.removeByName(client, CONTAINER_NAME);
 
+        // Viewer container serves image from a host directory, what is possible with
+        // local engine only, so if user asked to just save result - we are done here
+        if (outputPath != null) {
+            return CommandOutcome.succeeded();
+        }
+
         ExposedPort tcp80 = ExposedPort.tcp(80);
         Ports portBindings = new Ports();
         portBindings.bind(tcp80, Ports.Binding.empty());
@@ -196,7 +239,8 @@ public class NomnomlRenderCommand extends CommandWithMetadata {
                 NGINX_DOCKER_IMAGE,
                 CONTAINER_NAME,
                 new Bind(tempDir.getAbsolutePath(), new Volume("/usr/share/nginx/html")),
-                portBindings);
+                portBindings,
+                resourceProfiles.getProfile(VIEWER_ROLE));
 
         Integer mappedPort = ContainerUtils.getMappedPort(client, CONTAINER_NAME, tcp80);
 
@@ -0,0 +1,220 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import com.github.dockerjava.api.DockerClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.bootique.cli.Cli;
+import io.bootique.command.CommandOutcome;
+import io.bootique.command.CommandWithMetadata;
+import io.bootique.docker.demo.config.ContainerResourceProfiles;
+import io.bootique.docker.demo.guard.GuardedDockerClients;
+import io.bootique.docker.demo.render.RenderService;
+import io.bootique.meta.application.CommandMetadata;
+import io.bootique.meta.application.OptionMetadata;
+
+public class RenderServerCommand extends CommandWithMetadata {
+
+    private Provider<GuardedDockerClients> dockerClientsProvider;
+    private Provider<ContainerResourceProfiles> resourceProfilesProvider;
+
+    private static final String NOMNOML_DOCKER_IMAGE = "dapariscode/nomnoml-cli:latest";
+    private static final String CONTAINER_NAME_PREFIX = "bootique-nomnoml-renderer";
+    private static final String RENDERER_ROLE = "renderer";
+    private static final String PORT_ARG = "port";
+    private static final String RENDERERS_ARG = "renderers";
+    private static final String QUEUE_SIZE_ARG = "queue-size";
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_RENDERERS = 2;
+    private static final int DEFAULT_QUEUE_SIZE = 16;
+    private static final int MAX_SOURCE_SIZE = 64 * 1024;
+    private static final long RENDER_TIMEOUT_SECONDS = 60;
+
+    @Inject
+    public RenderServerCommand(Provider<GuardedDockerClients> dockerClientsProvider,
+            Provider<ContainerResourceProfiles> resourceProfilesProvider) {
+        super(commandMetadata());
+        this.dockerClientsProvider = dockerClientsProvider;
+        this.resourceProfilesProvider = resourceProfilesProvider;
+    }
+
+    private static CommandMetadata commandMetadata() {
+        return CommandMetadata.builder(
+                RenderServerCommand.class)
+                .description("Starts HTTP service rendering nomnoml sources via reusable Docker containers")
+                .addOption(OptionMetadata.builder(PORT_ARG)
+                        .description("HTTP port to listen on, " + DEFAULT_PORT + " by default")
+                        .valueRequired("port")
+                        .build())
+                .addOption(OptionMetadata.builder(RENDERERS_ARG)
+                        .description("Number of renderer containers, " + DEFAULT_RENDERERS + " by default")
+                        .valueRequired("count")
+                        .build())
+                .addOption(OptionMetadata.builder(QUEUE_SIZE_ARG)
+                        .description("Max number of renders waiting for a free container, "
+                                + DEFAULT_QUEUE_SIZE + " by default")
+                        .valueRequired("size")
+                        .build())
+                .build();
+    }
+
+    @Override
+    public CommandOutcome run(Cli cli) {
+
+        int port;
+        int renderers;
+        int queueSize;
+        try {
+            port = intOption(cli, PORT_ARG, DEFAULT_PORT);
+            renderers = intOption(cli, RENDERERS_ARG, DEFAULT_RENDERERS);
+            queueSize = intOption(cli, QUEUE_SIZE_ARG, DEFAULT_QUEUE_SIZE);
+        } catch (NumberFormatException e) {
+            return CommandOutcome.failed(-1, "Invalid numeric option: " + e.getMessage());
+        }
+
+        // Checked before any container is started, so nothing is left to clean up
+        if (port < 1 || port > 65535) {
+            return CommandOutcome.failed(-1, "Invalid port: " + port);
+        }
+        if (renderers < 1) {
+            return CommandOutcome.failed(-1, "At least one renderer is required");
+        }
+        if (queueSize < 1) {
+            return CommandOutcome.failed(-1, "Queue size must be at least 1");
+        }
+
+        DockerClient client = dockerClientsProvider.get().getEnvClient();
+
+        // Renderers don't use host mounts, so service works with remote engine too
+        RenderService renderService;
+        try {
+            renderService = new RenderService(client, NOMNOML_DOCKER_IMAGE, CONTAINER_NAME_PREFIX,
+                    resourceProfilesProvider.get().getProfile(RENDERER_ROLE), renderers, queueSize,
+                    RENDER_TIMEOUT_SECONDS);
+        } catch (RuntimeException e) {
+            return CommandOutcome.failed(-3, "Failed to start render service: " + e.getMessage(), e);
+        }
+
+        try (renderService) {
+
+            HttpServer server;
+            try {
+                server = HttpServer.create(new InetSocketAddress(port), 0);
+            } catch (IOException e) {
+                return CommandOutcome.failed(-2, "Failed to start HTTP server on port " + port, e);
+            }
+
+            // Request threads just wait for render results, real work is limited by
+            // render service queue, so there is no need to bound them here
+            ExecutorService httpExecutor = Executors.newCachedThreadPool();
+            server.setExecutor(httpExecutor);
+            server.createContext("/render", exchange -> handleRender(exchange, renderService));
+            server.createContext("/stats", exchange -> handleStats(exchange, renderService));
+            server.start();
+
+            System.out.println("Render service is running, POST nomnoml source to render it:");
+            System.out.println("curl --data-binary @demo.nomnoml -o demo.png http://localhost:" + port + "/render");
+            System.out.println("Service stats are available at http://localhost:" + port + "/stats");
+
+            System.out.println("To stop service - press ENTER key.");
+            try {
+                System.in.read();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            server.stop(0);
+            httpExecutor.shutdownNow();
+        }
+
+        return CommandOutcome.succeeded();
+    }
+
+    private static int intOption(Cli cli, String name, int defaultValue) {
+        String value = cli.optionString(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static void handleRender(HttpExchange exchange, RenderService renderService) throws IOException {
+
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "text/plain", "Only POST is supported\n".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_SOURCE_SIZE + 1);
+        }
+        if (body.length > MAX_SOURCE_SIZE) {
+            respond(exchange, 413, "text/plain", "Source is too large\n".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        String source = new String(body, StandardCharsets.UTF_8);
+        try {
+            byte[] image = renderService.submit(source).get(RENDER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            respond(exchange, 200, "image/png", image);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 429, "text/plain", "Render queue is full\n".getBytes(StandardCharsets.UTF_8));
+            } else {
+                respond(exchange, 500, "text/plain",
+                        ("Render failed: " + e.getCause().getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (TimeoutException e) {
+            respond(exchange, 504, "text/plain", "Render timed out\n".getBytes(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "text/plain", "Service is stopping\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void handleStats(HttpExchange exchange, RenderService renderService) throws IOException {
+        respond(exchange, 200, "text/plain", renderService.statsReport().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Ulimit;
+
+import io.bootique.annotation.BQConfig;
+import io.bootique.annotation.BQConfigProperty;
+import io.bootique.value.Bytes;
+
+@BQConfig("Resource limits applied to a container on creation")
+public class ContainerResources {
+
+    private Long cpuPeriod;
+    private Long cpuQuota;
+    private String cpusetCpus;
+    private String cpusetMems;
+    private Bytes memory;
+    private Bytes memorySwap;
+    private Long pidsLimit;
+    private Map<String, ContainerUlimit> ulimits = Collections.emptyMap();
+
+    @BQConfigProperty("CPU CFS period in microseconds, used together with 'cpuQuota'")
+    public void setCpuPeriod(Long cpuPeriod) {
+        this.cpuPeriod = cpuPeriod;
+    }
+
+    @BQConfigProperty("CPU CFS quota in microseconds per 'cpuPeriod', e.g. 50000 of 100000 is a half of CPU")
+    public void setCpuQuota(Long cpuQuota) {
+        this.cpuQuota = cpuQuota;
+    }
+
+    @BQConfigProperty("CPUs container is pinned to, e.g. '0-1' or '0,2'")
+    public void setCpusetCpus(String cpusetCpus) {
+        this.cpusetCpus = cpusetCpus;
+    }
+
+    @BQConfigProperty("Memory nodes container is allowed to use, e.g. '0'")
+    public void setCpusetMems(String cpusetMems) {
+        this.cpusetMems = cpusetMems;
+    }
+
+    @BQConfigProperty("Memory limit, e.g. '512m'")
+    public void setMemory(Bytes memory) {
+        this.memory = memory;
+    }
+
+    @BQConfigProperty("Total memory plus swap limit, e.g. '1g'. Equal to 'memory' disables swap")
+    public void setMemorySwap(Bytes memorySwap) {
+        this.memorySwap = memorySwap;
+    }
+
+    @BQConfigProperty("Max number of processes inside container")
+    public void setPidsLimit(Long pidsLimit) {
+        this.pidsLimit = pidsLimit;
+    }
+
+    @BQConfigProperty("Ulimits keyed by name, e.g. 'nofile'")
+    public void setUlimits(Map<String, ContainerUlimit> ulimits) {
+        // Empty 'ulimits:' key in YAML comes as null
+        this.ulimits = ulimits != null ? ulimits : Collections.emptyMap();
+    }
+
+    // Only explicitly configured limits are set, everything else is left to engine
+    // defaults
+    public HostConfig apply(HostConfig hostConfig) {
+        if (cpuPeriod != null) {
+            hostConfig.withCpuPeriod(cpuPeriod);
+        }
+        if (cpuQuota != null) {
+            hostConfig.withCpuQuota(cpuQuota);
+        }
+        if (cpusetCpus != null) {
+            hostConfig.withCpusetCpus(cpusetCpus);
+        }
+        if (cpusetMems != null) {
+            hostConfig.withCpusetMems(cpusetMems);
+        }
+        if (memory != null) {
+            hostConfig.withMemory(memory.getBytes());
+        }
+        if (memorySwap != null) {
+            hostConfig.withMemorySwap(memorySwap.getBytes());
+        }
+        if (pidsLimit != null) {
+            hostConfig.withPidsLimit(pidsLimit);
+        }
+        if (!ulimits.isEmpty()) {
+            List<Ulimit> dockerUlimits = new ArrayList<>(ulimits.size());
+            ulimits.forEach((name, ulimit) -> dockerUlimits.add(ulimit.toUlimit(name)));
+            hostConfig.withUlimits(dockerUlimits);
+        }
+        return hostConfig;
+    }
+}
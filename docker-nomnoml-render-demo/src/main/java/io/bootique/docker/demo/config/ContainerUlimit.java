@@ -0,0 +1,51 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.config;
+
+import com.github.dockerjava.api.model.Ulimit;
+
+import io.bootique.annotation.BQConfig;
+import io.bootique.annotation.BQConfigProperty;
+
+@BQConfig("Soft and hard values of a single container ulimit")
+public class ContainerUlimit {
+
+    private Long soft;
+    private Long hard;
+
+    @BQConfigProperty("Soft limit value. Same as 'hard' if not set")
+    public void setSoft(Long soft) {
+        this.soft = soft;
+    }
+
+    @BQConfigProperty("Hard limit value. Same as 'soft' if not set")
+    public void setHard(Long hard) {
+        this.hard = hard;
+    }
+
+    // Engine rejects ulimits with hard value below soft one, so single specified
+    // value is used for both
+    public Ulimit toUlimit(String name) {
+        if (soft == null && hard == null) {
+            throw new IllegalStateException("Neither soft nor hard value is set for ulimit '" + name + "'");
+        }
+        return new Ulimit(name, soft != null ? soft : hard, hard != null ? hard : soft);
+    }
+}
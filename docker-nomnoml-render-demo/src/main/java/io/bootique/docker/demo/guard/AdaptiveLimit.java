@@ -0,0 +1,117 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.guard;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// AIMD concurrency limit driven by observed latency: limit grows by one per
+// "window" of successful fast calls and is cut by a ratio when engine responds
+// slower than tolerated or fails. Commands differ in cost by orders of magnitude
+// (info vs create container), so baseline latency is kept per command type. It
+// follows minimum observed latency immediately and drifts up slowly, so permanent
+// engine slowdown is eventually accepted as a new normal.
+public class AdaptiveLimit {
+
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final Map<Class<?>, Double> baselineNanos;
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseAt;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.baselineNanos = new HashMap<>();
+        this.lastDecreaseAt = System.nanoTime();
+    }
+
+    public synchronized boolean acquire(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (inFlight >= (int) limit) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        inFlight++;
+        return true;
+    }
+
+    // Call completed, its latency is a valid signal of engine load
+    public synchronized void onSuccess(Class<?> commandType, long latencyNanos) {
+        inFlight--;
+        Double previous = baselineNanos.get(commandType);
+        double baseline = previous == null || latencyNanos < previous
+                ? latencyNanos
+                : previous + (latencyNanos - previous) * BASELINE_DRIFT;
+        baselineNanos.put(commandType, baseline);
+
+        if (latencyNanos > baseline * latencyTolerance) {
+            decrease(latencyNanos);
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        notifyAll();
+    }
+
+    // Call failed because of engine (5xx, transport error)
+    public synchronized void onDropped(long latencyNanos) {
+        inFlight--;
+        decrease(latencyNanos);
+        notifyAll();
+    }
+
+    // Call failed for reasons not related to engine load (e.g. 404), permit is
+    // returned without changing the limit
+    public synchronized void onIgnored() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    // All calls in flight at the moment of overload will report it, so limit is cut
+    // at most once per observed round trip, otherwise it'd collapse to minimum
+    private void decrease(long latencyNanos) {
+        long now = System.nanoTime();
+        if (now - lastDecreaseAt >= latencyNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            lastDecreaseAt = now;
+        }
+    }
+}
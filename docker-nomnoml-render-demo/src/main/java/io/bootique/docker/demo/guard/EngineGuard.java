@@ -0,0 +1,205 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.guard;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.github.dockerjava.api.command.CopyArchiveFromContainerCmd;
+import com.github.dockerjava.api.command.CopyArchiveToContainerCmd;
+import com.github.dockerjava.api.command.CreateImageCmd;
+import com.github.dockerjava.api.command.InfoCmd;
+import com.github.dockerjava.api.command.InspectContainerCmd;
+import com.github.dockerjava.api.command.InspectExecCmd;
+import com.github.dockerjava.api.command.InspectImageCmd;
+import com.github.dockerjava.api.command.InspectVolumeCmd;
+import com.github.dockerjava.api.command.ListContainersCmd;
+import com.github.dockerjava.api.command.ListImagesCmd;
+import com.github.dockerjava.api.command.ListVolumesCmd;
+import com.github.dockerjava.api.command.LoadImageCmd;
+import com.github.dockerjava.api.command.PingCmd;
+import com.github.dockerjava.api.command.SaveImageCmd;
+import com.github.dockerjava.api.command.VersionCmd;
+import com.github.dockerjava.api.exception.DockerException;
+
+// Admission layer of a single engine: every call waits for a permit of adaptive
+// concurrency limit, is rejected right away while circuit breaker is open, and
+// is retried with jittered backoff when failure looks temporary.
+public class EngineGuard {
+
+    // Read-only commands don't change engine state, so they can be repeated after
+    // any engine or transport failure
+    private static final Set<Class<?>> READ_COMMANDS = Set.of(
+            InfoCmd.class,
+            VersionCmd.class,
+            PingCmd.class,
+            ListContainersCmd.class,
+            ListImagesCmd.class,
+            ListVolumesCmd.class,
+            InspectContainerCmd.class,
+            InspectImageCmd.class,
+            InspectExecCmd.class,
+            InspectVolumeCmd.class,
+            CopyArchiveFromContainerCmd.class,
+            SaveImageCmd.class);
+
+    // Commands sending request body from a stream can't be repeated at all, stream is
+    // (partially) consumed by the first attempt
+    private static final Set<Class<?>> STREAM_COMMANDS = Set.of(
+            CopyArchiveToContainerCmd.class,
+            LoadImageCmd.class,
+            CreateImageCmd.class);
+
+    private final String name;
+    private final AdaptiveLimit limit;
+    private final CircuitBreaker breaker;
+    private final long acquireTimeoutNanos;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public EngineGuard(String name, AdaptiveLimit limit, CircuitBreaker breaker, long acquireTimeoutNanos,
+            int maxRetries, long baseBackoffMillis, long maxBackoffMillis) {
+        this.name = name;
+        this.limit = limit;
+        this.breaker = breaker;
+        this.acquireTimeoutNanos = acquireTimeoutNanos;
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public <T> T call(Class<?> commandType, Supplier<T> action) {
+        int attempt = 0;
+        while (true) {
+            acquire();
+
+            long start = System.nanoTime();
+            try {
+                T result = action.get();
+                limit.onSuccess(commandType, System.nanoTime() - start);
+                breaker.onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+
+                // Engine responded, it's just not happy with request (404, 409, ...)
+                if (!isEngineFailure(e)) {
+                    limit.onIgnored();
+                    breaker.onSuccess();
+                    throw e;
+                }
+
+                limit.onDropped(System.nanoTime() - start);
+                breaker.onFailure();
+                if (!isRetryable(commandType, e) || ++attempt > maxRetries) {
+                    throw e;
+                }
+                backoff(attempt, e);
+            } catch (Error e) {
+                // Says nothing about engine health, but permit and possible half-open
+                // trial must be given back, otherwise they are lost for good
+                limit.onIgnored();
+                breaker.onAbandoned();
+                throw e;
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInFlight() {
+        return limit.getInFlight();
+    }
+
+    public CircuitBreaker.State getBreakerState() {
+        return breaker.getState();
+    }
+
+    private void acquire() {
+        try {
+            if (!limit.acquire(acquireTimeoutNanos)) {
+                throw new EngineUnavailableException(name, "concurrency limit " + limit.getLimit() + " reached");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EngineUnavailableException(name, "interrupted while waiting for permit", e);
+        }
+
+        // Breaker is checked with permit taken, so half-open trial is never lost
+        // waiting for a permit
+        if (!breaker.allowRequest()) {
+            limit.onIgnored();
+            throw new EngineUnavailableException(name, "circuit breaker is open");
+        }
+    }
+
+    // "Full jitter" exponential backoff, so clients failed at the same moment don't
+    // come back at the same moment too
+    private void backoff(int attempt, RuntimeException failure) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+
+    // Other than read commands are retried only when engine refused request without
+    // running it, otherwise retry may repeat what is already done (e.g. create the
+    // same container twice)
+    private static boolean isRetryable(Class<?> commandType, RuntimeException e) {
+        if (STREAM_COMMANDS.contains(commandType)) {
+            return false;
+        }
+        if (READ_COMMANDS.contains(commandType)) {
+            return true;
+        }
+        if (e instanceof DockerException) {
+            int status = ((DockerException) e).getHttpStatus();
+            return status == 429 || status == 503;
+        }
+        return false;
+    }
+
+    private static boolean isEngineFailure(RuntimeException e) {
+        if (e instanceof DockerException) {
+            int status = ((DockerException) e).getHttpStatus();
+            return status >= 500 || status == 429;
+        }
+
+        // Transports wrap connection problems into runtime exceptions
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
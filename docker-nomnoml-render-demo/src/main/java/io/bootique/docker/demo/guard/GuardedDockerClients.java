@@ -0,0 +1,61 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.guard;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.github.dockerjava.api.DockerClient;
+
+import io.bootique.docker.DockerClients;
+
+// Same as DockerClients, but each returned client is wrapped with a guard of its
+// engine. Guard is created once per client name, so all consumers of the same
+// engine share one concurrency limit and one circuit breaker.
+public class GuardedDockerClients {
+
+    public static final String ENV_CLIENT_NAME = "env";
+
+    private final DockerClients dockerClients;
+    private final EngineGuardFactory guardFactory;
+    private final ConcurrentMap<String, EngineGuard> guards;
+    private final ConcurrentMap<String, DockerClient> clients;
+
+    public GuardedDockerClients(DockerClients dockerClients, EngineGuardFactory guardFactory) {
+        this.dockerClients = dockerClients;
+        this.guardFactory = guardFactory;
+        this.guards = new ConcurrentHashMap<>();
+        this.clients = new ConcurrentHashMap<>();
+    }
+
+    public DockerClient getEnvClient() {
+        return clients.computeIfAbsent(ENV_CLIENT_NAME,
+                n -> GuardedDockerClient.wrap(dockerClients.getEnvClient(), getGuard(n)));
+    }
+
+    public DockerClient getClient(String name) {
+        return clients.computeIfAbsent(name,
+                n -> GuardedDockerClient.wrap(dockerClients.getClient(n), getGuard(n)));
+    }
+
+    public EngineGuard getGuard(String name) {
+        return guards.computeIfAbsent(name, guardFactory::createGuard);
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.render;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.Frame;
+
+import io.bootique.docker.demo.config.ContainerResources;
+import io.bootique.docker.demo.util.ArchiveUtils;
+import io.bootique.docker.demo.util.ContainerUtils;
+
+public class RenderService implements AutoCloseable {
+
+    private static final String RENDER_DIR = "/tmp";
+    private static final String INPUT_FILE = "input.nomnoml";
+    private static final String OUTPUT_FILE = "output.png";
+
+    private final DockerClient dockerClient;
+    private final String imageTag;
+    private final ContainerResources resources;
+    private final long renderTimeoutSeconds;
+    private final List<String> containerNames;
+    private final BlockingQueue<String> idleContainers;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, CompletableFuture<byte[]>> inFlight;
+    private final RenderStats stats;
+
+    public RenderService(DockerClient dockerClient, String imageTag, String containerNamePrefix,
+            ContainerResources resources, int renderers, int queueCapacity, long renderTimeoutSeconds) {
+
+        if (renderers < 1 || queueCapacity < 1 || renderTimeoutSeconds < 1) {
+            throw new IllegalArgumentException("Renderers count, queue capacity and render timeout must be positive");
+        }
+
+        this.dockerClient = dockerClient;
+        this.imageTag = imageTag;
+        this.resources = resources;
+        this.renderTimeoutSeconds = renderTimeoutSeconds;
+        this.containerNames = new ArrayList<>(renderers);
+        this.idleContainers = new LinkedBlockingQueue<>();
+        this.inFlight = new ConcurrentHashMap<>();
+        this.stats = new RenderStats();
+
+        // One worker per container, so worker never waits for a free container. Work
+        // queue is bounded and overflow is rejected instead of piling up.
+        this.executor = new ThreadPoolExecutor(renderers, renderers,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // Renderer containers are started once and reused for every request, each
+        // render is just an exec inside already running container. Docker accepts
+        // container names in place of IDs, so containers are referred by name, which
+        // stays the same when broken container is replaced.
+        try {
+            for (int i = 0; i < renderers; i++) {
+                String containerName = containerNamePrefix + "-" + i;
+                containerNames.add(containerName);
+                startContainer(containerName);
+                idleContainers.add(containerName);
+            }
+        } catch (RuntimeException e) {
+            try {
+                close();
+            } catch (RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    // Identical sources requested at the same time are rendered only once, all
+    // callers receive the same future. Result future completes exceptionally with
+    // RejectedExecutionException when work queue is full.
+    public CompletableFuture<byte[]> submit(String source) {
+
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(source, result);
+        if (existing != null) {
+            stats.onCoalesced();
+            return existing;
+        }
+
+        long submittedAt = System.nanoTime();
+        try {
+            executor.execute(() -> render(source, result, submittedAt));
+            stats.onAccepted();
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(source, result);
+            stats.onRejected();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public String statsReport() {
+        return stats.report(executor.getQueue().size(), executor.getActiveCount());
+    }
+
+    private void startContainer(String containerName) {
+        ContainerUtils.removeByName(dockerClient, containerName);
+        Container container = ContainerUtils.getOrStart(dockerClient, imageTag, containerName, "bash", resources);
+        if (container == null) {
+            throw new IllegalStateException("Failed to start renderer container '" + containerName
+                    + "' from image '" + imageTag + "'");
+        }
+    }
+
+    private void render(String source, CompletableFuture<byte[]> result, long submittedAt) {
+        String containerName = null;
+        boolean containerHealthy = false;
+        try {
+            containerName = idleContainers.take();
+            byte[] image;
+            try {
+                image = renderIn(containerName, source);
+                containerHealthy = true;
+            } catch (RendererExitException e) {
+                // Renderer just didn't like the source, container itself is fine
+                containerHealthy = true;
+                throw e;
+            }
+            result.complete(image);
+            stats.onCompleted(System.nanoTime() - submittedAt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stats.onFailed();
+            result.completeExceptionally(e);
+        } catch (Exception e) {
+            stats.onFailed();
+            result.completeExceptionally(e);
+        } finally {
+            if (containerName != null) {
+                if (!containerHealthy) {
+                    replaceContainer(containerName);
+                }
+                idleContainers.add(containerName);
+            }
+            inFlight.remove(source, result);
+        }
+    }
+
+    // Container that hung or failed for unknown reason is not trusted anymore and is
+    // re-created. If it can't be re-created now, it's still returned to the pool, so
+    // next render on it fails and triggers one more replacement attempt.
+    private void replaceContainer(String containerName) {
+        try {
+            startContainer(containerName);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private byte[] renderIn(String containerName, String source) throws IOException, InterruptedException {
+
+        ArchiveUtils.copyFileToContainer(dockerClient, containerName, RENDER_DIR, INPUT_FILE,
+                source.getBytes(StandardCharsets.UTF_8));
+
+        // Container is reused, so output of previous render is still there. It is removed
+        // first, so render that didn't write anything can't return someone else's image.
+        String execId = dockerClient.execCreateCmd(containerName)
+                .withCmd("sh", "-c", "rm -f " + RENDER_DIR + "/" + OUTPUT_FILE
+                        + " && ./nomnoml -i " + RENDER_DIR + "/" + INPUT_FILE
+                        + " -o " + RENDER_DIR + "/" + OUTPUT_FILE)
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .exec()
+                .getId();
+        try (ResultCallback.Adapter<Frame> callback = dockerClient.execStartCmd(execId)
+                .exec(new ResultCallback.Adapter<Frame>())) {
+            if (!callback.awaitCompletion(renderTimeoutSeconds, TimeUnit.SECONDS)) {
+                throw new IOException("Renderer didn't finish in " + renderTimeoutSeconds + "s");
+            }
+        }
+
+        Long exitCode = dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+        if (exitCode == null || exitCode != 0) {
+            throw new RendererExitException(exitCode);
+        }
+
+        Path output = Files.createTempFile("nomnoml", ".png");
+        try {
+            ArchiveUtils.copyFileFromContainer(dockerClient, containerName, RENDER_DIR + "/" + OUTPUT_FILE, output);
+            return Files.readAllBytes(output);
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        removeContainers();
+    }
+
+    private void removeContainers() {
+        for (String containerName : containerNames) {
+            ContainerUtils.removeByName(dockerClient, containerName);
+        }
+    }
+
+    private static class RendererExitException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        RendererExitException(Long exitCode) {
+            super("Renderer exited with code " + exitCode);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.render;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RenderStats {
+
+    // Percentiles are calculated over a window of most recent renders, so memory
+    // stays fixed no matter how long service is running
+    private static final int LATENCY_WINDOW = 1024;
+
+    private final long startedAt = System.nanoTime();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+    private int latencyNext;
+
+    public void onAccepted() {
+        accepted.incrementAndGet();
+    }
+
+    public void onCoalesced() {
+        coalesced.incrementAndGet();
+    }
+
+    public void onRejected() {
+        rejected.incrementAndGet();
+    }
+
+    public void onFailed() {
+        failed.incrementAndGet();
+    }
+
+    public void onCompleted(long latencyNanos) {
+        completed.incrementAndGet();
+        synchronized (latencies) {
+            latencies[latencyNext] = latencyNanos;
+            latencyNext = (latencyNext + 1) % LATENCY_WINDOW;
+            latencyCount = Math.min(latencyCount + 1, LATENCY_WINDOW);
+        }
+    }
+
+    public String report(int queueDepth, int activeRenders) {
+
+        long[] window;
+        synchronized (latencies) {
+            window = Arrays.copyOf(latencies, latencyCount);
+        }
+        Arrays.sort(window);
+
+        double uptimeSeconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        StringBuilder report = new StringBuilder();
+        report.append("queue.depth: ").append(queueDepth).append('\n');
+        report.append("renders.active: ").append(activeRenders).append('\n');
+        report.append("requests.accepted: ").append(accepted.get()).append('\n');
+        report.append("requests.coalesced: ").append(coalesced.get()).append('\n');
+        report.append("requests.rejected: ").append(rejected.get()).append('\n');
+        report.append("renders.completed: ").append(completed.get()).append('\n');
+        report.append("renders.failed: ").append(failed.get()).append('\n');
+        report.append("renders.throughput: ")
+                .append(String.format("%.2f/s", completed.get() / Math.max(uptimeSeconds, 1.0))).append('\n');
+        report.append("latency.p50: ").append(percentileMillis(window, 0.50)).append("ms\n");
+        report.append("latency.p90: ").append(percentileMillis(window, 0.90)).append("ms\n");
+        report.append("latency.p99: ").append(percentileMillis(window, 0.99)).append("ms\n");
+        return report.toString();
+    }
+
+    private static long percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.stub;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Tiny imitation of Docker engine API answering only ping, version and info
+// requests. Latency grows with number of requests in flight, like a real daemon
+// that is saturated, and faults can be injected at runtime.
+public class StubEngine implements AutoCloseable {
+
+    private static final String INFO_JSON = "{\"ID\":\"STUB\",\"OperatingSystem\":\"Stub Engine\","
+            + "\"DockerRootDir\":\"/var/lib/stub\"}";
+    private static final String VERSION_JSON = "{\"Version\":\"stub\",\"ApiVersion\":\"1.41\"}";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger inFlight;
+
+    private volatile long baseLatencyMillis;
+    private volatile long perRequestLatencyMillis;
+    private volatile double errorRate;
+
+    public StubEngine(int port) throws IOException {
+        this.inFlight = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Each request takes 'base + inFlight * perRequest' millis, and fails with 500
+    // status with 'errorRate' probability
+    public void setFaults(long baseLatencyMillis, long perRequestLatencyMillis, double errorRate) {
+        this.baseLatencyMillis = baseLatencyMillis;
+        this.perRequestLatencyMillis = perRequestLatencyMillis;
+        this.errorRate = errorRate;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int concurrent = inFlight.incrementAndGet();
+        try {
+            TimeUnit.MILLISECONDS.sleep(baseLatencyMillis + concurrent * perRequestLatencyMillis);
+
+            String path = exchange.getRequestURI().getPath();
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                respond(exchange, 500, "{\"message\":\"injected failure\"}");
+            } else if (path.endsWith("/_ping")) {
+                respond(exchange, 200, "OK");
+            } else if (path.endsWith("/version")) {
+                respond(exchange, 200, VERSION_JSON);
+            } else if (path.endsWith("/info")) {
+                respond(exchange, 200, INFO_JSON);
+            } else {
+                respond(exchange, 404, "{\"message\":\"not supported by stub engine\"}");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to ObjectStyle LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ObjectStyle LLC licenses
+ * this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.bootique.docker.demo.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+import com.github.dockerjava.api.DockerClient;
+
+public abstract class ArchiveUtils {
+
+    // Size of a single chunk moved from archive stream into the target file, so
+    // heap usage stays the same regardless of archive size
+    private static final long TRANSFER_CHUNK_SIZE = 64 * 1024;
+
+    // Same as for copying from container, files can be put into container only as a
+    // tar archive. Content is expected to be small (text sources), so archive is
+    // built in memory.
+    public static void copyFileToContainer(DockerClient dockerClient, String containerId, String containerDir,
+            String fileName, byte[] content) throws IOException {
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream(content.length + 1024);
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(archive)) {
+            TarArchiveEntry entry = new TarArchiveEntry(fileName);
+            entry.setSize(content.length);
+            tar.putArchiveEntry(entry);
+            tar.write(content);
+            tar.closeArchiveEntry();
+        }
+
+        dockerClient.copyArchiveToContainerCmd(containerId)
+                .withRemotePath(containerDir)
+                .withTarInputStream(new ByteArrayInputStream(archive.toByteArray()))
+                .exec();
+    }
+
+    // Docker engine API does not give direct access to container filesystem, the
+    // only way to get file out of container (without shared mounts, which are not
+    // available for remote engines) is to request a tar archive of the path. Archive
+    // is streamed from engine, so we unpack it on the fly, never holding whole
+    // archive in memory.
+    public static long copyFileFromContainer(DockerClient dockerClient, String containerId, String containerPath,
+            Path target) throws IOException {
+
+        try (InputStream archive = dockerClient.copyArchiveFromContainerCmd(containerId, containerPath).exec();
+                TarArchiveInputStream tar = new TarArchiveInputStream(archive)) {
+
+            // Archive of a single file still may contain directory entries, so we skip
+            // everything until first regular file
+            TarArchiveEntry entry = tar.getNextTarEntry();
+            while (entry != null && !entry.isFile()) {
+                entry = tar.getNextTarEntry();
+            }
+            if (entry == null) {
+                throw new IOException("No file found in container archive for '" + containerPath + "'");
+            }
+
+            // Tar stream reports end of data at the end of current entry, so channel
+            // will receive exactly one file content
+            ReadableByteChannel source = Channels.newChannel(tar);
+            try (FileChannel channel = FileChannel.open(target,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                long position = 0;
+                long transferred;
+                while ((transferred = channel.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0) {
+                    position += transferred;
+                }
+                return position;
+            }
+        }
+    }
+}
@@ -22,6 +22,8 @@ package io.bootique.docker.demo.util;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.command.CreateContainerCmd;
@@ -35,6 +37,7 @@ import com.github.dockerjava.api.model.Image;
 import com.github.dockerjava.api.model.Ports;
 
 import io.bootique.cli.Cli;
+import io.bootique.docker.demo.config.ContainerResources;
 import io.bootique.meta.application.OptionMetadata;
 
 public abstract class ContainerUtils {
@@ -44,6 +47,8 @@ public abstract class ContainerUtils {
     private static final String STATE_RUNNING = "running";
     public static final String RESTART_CONTAINER_FLAG = "restart-container";
     public static final String KILL_CONTAINER_FLAG = "kill-container";
+    private static final long REMOVE_BASE_BACKOFF_MS = 20;
+    private static final long REMOVE_MAX_BACKOFF_MS = 1000;
 
     public static OptionMetadata killContainerOption() {
         return OptionMetadata.builder(
@@ -86,6 +91,7 @@ public abstract class ContainerUtils {
 
     public static boolean removeByName(DockerClient dockerClient, String containerName) {
         Container container = getByName(dockerClient, containerName);
+        int attempt = 0;
         while (container != null) {
             try {
                 switch (container.getState()) {
@@ -108,23 +114,47 @@ public abstract class ContainerUtils {
                 // actual state until container is fully destroyed and removed from engine
                 // environment
             }
+
+            // Container is in transition (removing, restarting, ...) or changed its state
+            // under our feet, so we check again, but give engine some time first instead
+            // of bombarding it with requests
+            if (!backoff(++attempt)) {
+                return false;
+            }
             container = getByName(dockerClient, containerName);
         }
         return true;
     }
 
+    // Exponential backoff with "full jitter", returns false if thread was interrupted
+    private static boolean backoff(int attempt) {
+        long ceiling = Math.min(REMOVE_MAX_BACKOFF_MS, REMOVE_BASE_BACKOFF_MS << Math.min(attempt - 1, 10));
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
     public static Container getOrStart(DockerClient dockerClient, String imageTag, String containerName,
-            Bind bind, Ports ports) {
-        return getOrStart(dockerClient, imageTag, containerName, bind, ports, null);
+            Bind bind, Ports ports, ContainerResources resources) {
+        return getOrStart(dockerClient, imageTag, containerName, bind, ports, null, resources);
     }
 
     public static Container getOrStart(DockerClient dockerClient, String imageTag, String containerName,
-            Bind bind, String containerCommand) {
-        return getOrStart(dockerClient, imageTag, containerName, bind, null, containerCommand);
+            String containerCommand, ContainerResources resources) {
+        return getOrStart(dockerClient, imageTag, containerName, null, null, containerCommand, resources);
+    }
+
+    public static Container getOrStart(DockerClient dockerClient, String imageTag, String containerName,
+            Bind bind, String containerCommand, ContainerResources resources) {
+        return getOrStart(dockerClient, imageTag, containerName, bind, null, containerCommand, resources);
     }
 
     private static Container getOrStart(DockerClient dockerClient, String imageTag, String containerName,
-            Bind bind, Ports ports, String containerCommand) {
+            Bind bind, Ports ports, String containerCommand, ContainerResources resources) {
 
         Container container = getByName(dockerClient, containerName);
         if (container == null) {
@@ -161,7 +191,10 @@ public abstract class ContainerUtils {
                     .withStdinOpen(true)
                     .withTty(true);
 
-            createCmd.getHostConfig().withBinds(Collections.singletonList(bind));
+            // Binds are only usable when engine shares filesystem with us (local engine)
+            if (bind != null) {
+                createCmd.getHostConfig().withBinds(Collections.singletonList(bind));
+            }
 
             // In case we'll need to override default command for container
             if (containerCommand != null) {
@@ -175,6 +208,10 @@ public abstract class ContainerUtils {
                 // createCmd.getHostConfig().withPortBindings(ports);
             }
 
+            // Resource limits can be set only on creation, already existing container
+            // keeps limits it was created with
+            resources.apply(createCmd.getHostConfig());
+
             // It's important to remember, that docker is not using create and start logic,
             // each step is separated, so we need no only to create container, but also wait
             // till it's created and than start it.